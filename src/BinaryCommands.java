@@ -0,0 +1,387 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This class defines the compact binary form of the command file and converts
+ * between it and the text form. A binary file starts with the MAGIC bytes and
+ * is followed by one frame per command. A frame is an opcode byte followed by
+ * the arguments of that command: names are a varint byte length followed by
+ * the UTF-8 bytes of the name, and coordinates are zigzag varints so that the
+ * negative values found in rejected commands stay short.
+ *
+ * @author CS Staff
+ *
+ * @version 2026-10-19
+ */
+public class BinaryCommands {
+
+    /**
+     * The bytes that every binary command file starts with.
+     */
+    public static final byte[] MAGIC = { 'R', 'C', 'B', '1' };
+
+    /**
+     * A command that is not recognized; it has no arguments.
+     */
+    public static final int UNKNOWN = 0;
+    /**
+     * insert name x y w h
+     */
+    public static final int INSERT = 1;
+    /**
+     * remove name
+     */
+    public static final int REMOVE_NAME = 2;
+    /**
+     * remove x y w h
+     */
+    public static final int REMOVE_RECT = 3;
+    /**
+     * regionsearch x y w h
+     */
+    public static final int REGIONSEARCH = 4;
+    /**
+     * intersections
+     */
+    public static final int INTERSECTIONS = 5;
+    /**
+     * search name
+     */
+    public static final int SEARCH = 6;
+    /**
+     * dump
+     */
+    public static final int DUMP = 7;
+    /**
+     * removeRange lo hi
+     */
+    public static final int REMOVE_RANGE = 8;
+    /**
+     * removeRegion x y w h
+     */
+    public static final int REMOVE_REGION = 9;
+
+    /**
+     * Writes one text command line as a binary frame. Only lines that convert
+     * exactly are accepted: every argument the command reads must be present
+     * and every coordinate must be an int written the way Integer.toString
+     * would write it, so that the echo of a rejected command is unchanged.
+     *
+     * @param line
+     *            a single line from the text file
+     * @param out
+     *            the stream to write the frame to
+     * @throws IOException
+     *             if the stream cannot be written
+     * @throws IllegalArgumentException
+     *             if the line cannot be converted exactly; nothing is written
+     */
+    public static void writeCommand(String line, DataOutputStream out)
+        throws IOException {
+        String[] lineArr = line.trim().replaceAll("\\s+", " ").split(" ");
+        switch (lineArr[0]) {
+            case "insert":
+                requireWords(lineArr, 6);
+                int[] insert = coordinates(lineArr, 2);
+                out.writeByte(INSERT);
+                writeName(lineArr[1], out);
+                writeCoordinates(insert, out);
+                break;
+            case "remove":
+                if (lineArr.length == 2) {
+                    out.writeByte(REMOVE_NAME);
+                    writeName(lineArr[1], out);
+                }
+                else {
+                    requireWords(lineArr, 5);
+                    int[] remove = coordinates(lineArr, 1);
+                    out.writeByte(REMOVE_RECT);
+                    writeCoordinates(remove, out);
+                }
+                break;
+            case "removeRange":
+                requireWords(lineArr, 3);
+                out.writeByte(REMOVE_RANGE);
+                writeName(lineArr[1], out);
+                writeName(lineArr[2], out);
+                break;
+            case "removeRegion":
+                requireWords(lineArr, 5);
+                int[] removeRegion = coordinates(lineArr, 1);
+                out.writeByte(REMOVE_REGION);
+                writeCoordinates(removeRegion, out);
+                break;
+            case "regionsearch":
+                requireWords(lineArr, 5);
+                int[] region = coordinates(lineArr, 1);
+                out.writeByte(REGIONSEARCH);
+                writeCoordinates(region, out);
+                break;
+            case "intersections":
+                out.writeByte(INTERSECTIONS);
+                break;
+            case "search":
+                requireWords(lineArr, 2);
+                out.writeByte(SEARCH);
+                writeName(lineArr[1], out);
+                break;
+            case "dump":
+                out.writeByte(DUMP);
+                break;
+            default:
+                out.writeByte(UNKNOWN);
+                break;
+        }
+    }
+
+
+    /**
+     * Reads one binary frame and returns it as a text command line.
+     *
+     * @param in
+     *            the stream to read the frame from
+     * @return the text command, or null at the end of the stream
+     * @throws IOException
+     *             if the stream cannot be read, the frame is malformed, or a
+     *             name in it cannot be read back from a text line
+     */
+    public static String readCommand(DataInputStream in) throws IOException {
+        int opcode = in.read();
+        switch (opcode) {
+            case -1:
+                return null;
+            case INSERT:
+                return "insert " + readTextName(in) + " " + readCoordinates(
+                    in);
+            case REMOVE_NAME:
+                return "remove " + readTextName(in);
+            case REMOVE_RECT:
+                return "remove " + readCoordinates(in);
+            case REMOVE_RANGE:
+                return "removeRange " + readTextName(in) + " " + readTextName(
+                    in);
+            case REMOVE_REGION:
+                return "removeRegion " + readCoordinates(in);
+            case REGIONSEARCH:
+                return "regionsearch " + readCoordinates(in);
+            case INTERSECTIONS:
+                return "intersections";
+            case SEARCH:
+                return "search " + readTextName(in);
+            case DUMP:
+                return "dump";
+            case UNKNOWN:
+                return "unknown";
+            default:
+                throw new IOException("Unknown opcode: " + opcode);
+        }
+    }
+
+
+    /**
+     * Reads the MAGIC bytes from the start of a binary command file.
+     *
+     * @param in
+     *            the stream to read from
+     * @return true if the stream started with the MAGIC bytes
+     * @throws IOException
+     *             if the stream cannot be read
+     */
+    public static boolean readMagic(DataInputStream in) throws IOException {
+        for (byte b : MAGIC) {
+            if (in.read() != b) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * Writes a name as its byte length followed by its UTF-8 bytes.
+     *
+     * @param name
+     *            the name to be written
+     * @param out
+     *            the stream to write to
+     * @throws IOException
+     *             if the stream cannot be written
+     */
+    public static void writeName(String name, DataOutputStream out)
+        throws IOException {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        writeVarint(bytes.length, out);
+        out.write(bytes);
+    }
+
+
+    /**
+     * Reads a name written by writeName.
+     *
+     * @param in
+     *            the stream to read from
+     * @return the name
+     * @throws IOException
+     *             if the stream cannot be read
+     */
+    public static String readName(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[readVarint(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+
+    /**
+     * Writes a signed int as a zigzag varint: seven bits per byte, low bits
+     * first, with the high bit of each byte set while more bytes follow.
+     *
+     * @param value
+     *            the value to be written
+     * @param out
+     *            the stream to write to
+     * @throws IOException
+     *             if the stream cannot be written
+     */
+    public static void writeVarint(int value, DataOutputStream out)
+        throws IOException {
+        int zigzag = (value << 1) ^ (value >> 31);
+        while ((zigzag & ~0x7F) != 0) {
+            out.writeByte((zigzag & 0x7F) | 0x80);
+            zigzag >>>= 7;
+        }
+        out.writeByte(zigzag);
+    }
+
+
+    /**
+     * Reads a signed int written by writeVarint.
+     *
+     * @param in
+     *            the stream to read from
+     * @return the value
+     * @throws IOException
+     *             if the stream cannot be read or the varint is too long
+     */
+    public static int readVarint(DataInputStream in) throws IOException {
+        int zigzag = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            zigzag |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+        }
+        throw new IOException("Varint too long");
+    }
+
+
+    /**
+     * Checks that the text command has at least count words.
+     *
+     * @param lineArr
+     *            the words of the text command
+     * @param count
+     *            the number of words the command reads
+     * @throws IllegalArgumentException
+     *             if there are fewer words
+     */
+    private static void requireWords(String[] lineArr, int count) {
+        if (lineArr.length < count) {
+            throw new IllegalArgumentException("expected " + count
+                + " words but found " + lineArr.length);
+        }
+    }
+
+
+    /**
+     * Parses the four coordinates that start at lineArr[first].
+     *
+     * @param lineArr
+     *            the words of the text command
+     * @param first
+     *            the index of the first coordinate
+     * @return the coordinates
+     * @throws IllegalArgumentException
+     *             if a coordinate is not an int in its plain form
+     */
+    private static int[] coordinates(String[] lineArr, int first) {
+        int[] values = new int[4];
+        for (int i = 0; i < 4; i++) {
+            String word = lineArr[first + i];
+            try {
+                values[i] = Integer.parseInt(word);
+            }
+            catch (NumberFormatException e) {
+                throw new IllegalArgumentException("not an int: " + word);
+            }
+            if (!Integer.toString(values[i]).equals(word)) {
+                throw new IllegalArgumentException("not a plain int: "
+                    + word);
+            }
+        }
+        return values;
+    }
+
+
+    /**
+     * Writes four coordinates.
+     *
+     * @param values
+     *            the coordinates
+     * @param out
+     *            the stream to write to
+     * @throws IOException
+     *             if the stream cannot be written
+     */
+    private static void writeCoordinates(int[] values, DataOutputStream out)
+        throws IOException {
+        for (int value : values) {
+            writeVarint(value, out);
+        }
+    }
+
+
+    /**
+     * Reads a name that is going to be written into a text line.
+     *
+     * @param in
+     *            the stream to read from
+     * @return the name
+     * @throws IOException
+     *             if the stream cannot be read, or the name is empty or holds
+     *             whitespace or a line break and so could not be read back
+     *             from text
+     */
+    private static String readTextName(DataInputStream in) throws IOException {
+        String name = readName(in);
+        if (name.isEmpty() || name.matches(
+            "(?s).*[\\s\\u0085\\u2028\\u2029].*")) {
+            throw new IOException("Name cannot be written as text: \""
+                + name + "\"");
+        }
+        return name;
+    }
+
+
+    /**
+     * Reads four coordinates and returns them separated by spaces.
+     *
+     * @param in
+     *            the stream to read from
+     * @return the coordinates as text
+     * @throws IOException
+     *             if the stream cannot be read
+     */
+    private static String readCoordinates(DataInputStream in)
+        throws IOException {
+        return readVarint(in) + " " + readVarint(in) + " " + readVarint(in)
+            + " " + readVarint(in);
+    }
+
+}
@@ -0,0 +1,394 @@
+import java.awt.Rectangle;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * This class writes results as compact binary frames, using the same varint
+ * and name encodings as BinaryCommands. A result stream starts with the MAGIC
+ * bytes and is followed by one frame per result: a kind byte, then the fields
+ * of that result in the order of the ResultSink method's parameters.
+ * Rectangles are four varints, and a name that may be missing is preceded by a
+ * byte that is 1 when it is present. The arguments of a rejected command are
+ * written as names, since they are echoed exactly as given. replay reads such
+ * a stream back into any other sink.
+ *
+ * @author CS Staff
+ *
+ * @version 2026-10-19
+ */
+public class BinaryResultSink implements ResultSink {
+
+    /**
+     * The bytes that every binary result stream starts with.
+     */
+    public static final byte[] MAGIC = { 'R', 'R', 'B', '1' };
+
+    // the kind byte of each result frame
+    private static final int INSERTED = 1;
+    private static final int REJECTED = 2;
+    private static final int REMOVED = 3;
+    private static final int NOT_FOUND_NAME = 4;
+    private static final int NOT_FOUND_RECT = 5;
+    private static final int NONE_IN_RANGE = 6;
+    private static final int NONE_IN_REGION = 7;
+    private static final int REGION_HEADER = 8;
+    private static final int RECTANGLE = 9;
+    private static final int INTERSECTIONS_HEADER = 10;
+    private static final int INTERSECTION = 11;
+    private static final int FOUND = 12;
+    private static final int SEARCH_NOT_FOUND = 13;
+    private static final int DUMP_HEADER = 14;
+    private static final int DUMP_NODE = 15;
+    private static final int DUMP_SIZE = 16;
+    private static final int UNRECOGNIZED = 17;
+
+    // where the frames are written
+    private DataOutputStream out;
+
+    /**
+     * Creates a sink that writes the MAGIC bytes and then one frame per result
+     * to the given stream.
+     *
+     * @param out
+     *            the stream to write to
+     * @throws IOException
+     *             if the MAGIC bytes cannot be written
+     */
+    public BinaryResultSink(DataOutputStream out) throws IOException {
+        this.out = out;
+        out.write(MAGIC);
+    }
+
+
+    /**
+     * Reads a binary result stream, starting with its MAGIC bytes, and hands
+     * every result to the given sink in order.
+     *
+     * @param in
+     *            the stream to read from
+     * @param sink
+     *            the sink to receive the results
+     * @throws IOException
+     *             if the stream cannot be read or is not a result stream
+     */
+    public static void replay(DataInputStream in, ResultSink sink)
+        throws IOException {
+        for (byte b : MAGIC) {
+            if (in.read() != b) {
+                throw new IOException("Not a binary result stream");
+            }
+        }
+        int kind;
+        while ((kind = in.read()) != -1) {
+            switch (kind) {
+                case INSERTED:
+                    sink.inserted(BinaryCommands.readName(in), readRect(in));
+                    break;
+                case REJECTED:
+                    String name = in.readByte() == 1
+                        ? BinaryCommands.readName(in)
+                        : null;
+                    sink.rejected(name, BinaryCommands.readName(in),
+                        BinaryCommands.readName(in), BinaryCommands.readName(
+                            in), BinaryCommands.readName(in));
+                    break;
+                case REMOVED:
+                    sink.removed(BinaryCommands.readName(in), readRect(in));
+                    break;
+                case NOT_FOUND_NAME:
+                    sink.notFound(BinaryCommands.readName(in));
+                    break;
+                case NOT_FOUND_RECT:
+                    sink.notFound(readRect(in));
+                    break;
+                case NONE_IN_RANGE:
+                    String lo = BinaryCommands.readName(in);
+                    sink.noneInRange(lo, BinaryCommands.readName(in));
+                    break;
+                case NONE_IN_REGION:
+                    sink.noneInRegion(readRect(in));
+                    break;
+                case REGION_HEADER:
+                    sink.regionHeader(readRect(in));
+                    break;
+                case RECTANGLE:
+                    sink.rectangle(BinaryCommands.readName(in), readRect(in));
+                    break;
+                case INTERSECTIONS_HEADER:
+                    sink.intersectionsHeader();
+                    break;
+                case INTERSECTION:
+                    String name1 = BinaryCommands.readName(in);
+                    Rectangle rec1 = readRect(in);
+                    sink.intersection(name1, rec1, BinaryCommands.readName(in),
+                        readRect(in));
+                    break;
+                case FOUND:
+                    sink.found();
+                    break;
+                case SEARCH_NOT_FOUND:
+                    sink.searchNotFound(BinaryCommands.readName(in));
+                    break;
+                case DUMP_HEADER:
+                    sink.dumpHeader();
+                    break;
+                case DUMP_NODE:
+                    int depth = BinaryCommands.readVarint(in);
+                    if (in.readByte() == 1) {
+                        sink.dumpNode(depth, BinaryCommands.readName(in),
+                            readRect(in));
+                    }
+                    else {
+                        sink.dumpNode(depth, null, null);
+                    }
+                    break;
+                case DUMP_SIZE:
+                    sink.dumpSize(BinaryCommands.readVarint(in));
+                    break;
+                case UNRECOGNIZED:
+                    sink.unrecognized();
+                    break;
+                default:
+                    throw new IOException("Unknown result kind: " + kind);
+            }
+        }
+    }
+
+
+    /**
+     * Reads a rectangle written by writeRect.
+     *
+     * @param in
+     *            the stream to read from
+     * @return the rectangle
+     * @throws IOException
+     *             if the stream cannot be read
+     */
+    private static Rectangle readRect(DataInputStream in) throws IOException {
+        return new Rectangle(BinaryCommands.readVarint(in), BinaryCommands
+            .readVarint(in), BinaryCommands.readVarint(in), BinaryCommands
+                .readVarint(in));
+    }
+
+
+    /**
+     * Writes a rectangle as four varints.
+     *
+     * @param rec
+     *            the rectangle
+     * @throws IOException
+     *             if the stream cannot be written
+     */
+    private void writeRect(Rectangle rec) throws IOException {
+        BinaryCommands.writeVarint(rec.x, out);
+        BinaryCommands.writeVarint(rec.y, out);
+        BinaryCommands.writeVarint(rec.width, out);
+        BinaryCommands.writeVarint(rec.height, out);
+    }
+
+
+    /**
+     * Writes a frame that holds a name and a rectangle.
+     *
+     * @param kind
+     *            the kind byte of the frame
+     * @param name
+     *            the name
+     * @param rec
+     *            the rectangle
+     */
+    private void writeNamed(int kind, String name, Rectangle rec) {
+        try {
+            out.writeByte(kind);
+            BinaryCommands.writeName(name, out);
+            writeRect(rec);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    /**
+     * Writes a frame that holds only a rectangle.
+     *
+     * @param kind
+     *            the kind byte of the frame
+     * @param rec
+     *            the rectangle
+     */
+    private void writeRect(int kind, Rectangle rec) {
+        try {
+            out.writeByte(kind);
+            writeRect(rec);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    /**
+     * Writes a frame that holds the given names.
+     *
+     * @param kind
+     *            the kind byte of the frame
+     * @param names
+     *            the names
+     */
+    private void writeNames(int kind, String... names) {
+        try {
+            out.writeByte(kind);
+            for (String name : names) {
+                BinaryCommands.writeName(name, out);
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    @Override
+    public void inserted(String name, Rectangle rec) {
+        writeNamed(INSERTED, name, rec);
+    }
+
+
+    @Override
+    public void rejected(String name, String x, String y, String w, String h) {
+        try {
+            out.writeByte(REJECTED);
+            out.writeByte(name == null ? 0 : 1);
+            if (name != null) {
+                BinaryCommands.writeName(name, out);
+            }
+            for (String word : new String[] { x, y, w, h }) {
+                BinaryCommands.writeName(word, out);
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    @Override
+    public void removed(String name, Rectangle rec) {
+        writeNamed(REMOVED, name, rec);
+    }
+
+
+    @Override
+    public void notFound(String name) {
+        writeNames(NOT_FOUND_NAME, name);
+    }
+
+
+    @Override
+    public void notFound(Rectangle rec) {
+        writeRect(NOT_FOUND_RECT, rec);
+    }
+
+
+    @Override
+    public void noneInRange(String lo, String hi) {
+        writeNames(NONE_IN_RANGE, lo, hi);
+    }
+
+
+    @Override
+    public void noneInRegion(Rectangle region) {
+        writeRect(NONE_IN_REGION, region);
+    }
+
+
+    @Override
+    public void regionHeader(Rectangle region) {
+        writeRect(REGION_HEADER, region);
+    }
+
+
+    @Override
+    public void rectangle(String name, Rectangle rec) {
+        writeNamed(RECTANGLE, name, rec);
+    }
+
+
+    @Override
+    public void intersectionsHeader() {
+        writeNames(INTERSECTIONS_HEADER);
+    }
+
+
+    @Override
+    public void intersection(String name1, Rectangle rec1, String name2,
+        Rectangle rec2) {
+        try {
+            out.writeByte(INTERSECTION);
+            BinaryCommands.writeName(name1, out);
+            writeRect(rec1);
+            BinaryCommands.writeName(name2, out);
+            writeRect(rec2);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    @Override
+    public void found() {
+        writeNames(FOUND);
+    }
+
+
+    @Override
+    public void searchNotFound(String name) {
+        writeNames(SEARCH_NOT_FOUND, name);
+    }
+
+
+    @Override
+    public void dumpHeader() {
+        writeNames(DUMP_HEADER);
+    }
+
+
+    @Override
+    public void dumpNode(int depth, String name, Rectangle rec) {
+        try {
+            out.writeByte(DUMP_NODE);
+            BinaryCommands.writeVarint(depth, out);
+            out.writeByte(name == null ? 0 : 1);
+            if (name != null) {
+                BinaryCommands.writeName(name, out);
+                writeRect(rec);
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    @Override
+    public void dumpSize(int size) {
+        try {
+            out.writeByte(DUMP_SIZE);
+            BinaryCommands.writeVarint(size, out);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    @Override
+    public void unrecognized() {
+        writeNames(UNRECOGNIZED);
+    }
+
+}
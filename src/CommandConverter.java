@@ -0,0 +1,172 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.util.Scanner;
+
+/**
+ * A command line tool that converts command files between the text form read
+ * by CommandProcessor.processor and the binary form described in
+ * BinaryCommands, and turns binary result files written by BinaryResultSink
+ * back into the console text. Blank lines are dropped when converting to
+ * binary. A line or frame that cannot be converted exactly stops the
+ * conversion with an error that names it, and no output file is left behind.
+ *
+ * @author CS Staff
+ *
+ * @version 2026-10-19
+ */
+public class CommandConverter {
+
+    /**
+     * The entry point of the converter.
+     *
+     * @param args
+     *            "toBinary", "toText" or "resultsToText", followed by the
+     *            input file name and the output file name
+     */
+    public static void main(String[] args) {
+        if (args.length != 3) {
+            System.out.println(
+                "Usage: CommandConverter toBinary|toText|resultsToText "
+                    + "<input> <output>");
+            return;
+        }
+        try {
+            if (args[0].equals("toBinary")) {
+                toBinary(new File(args[1]), new File(args[2]));
+            }
+            else if (args[0].equals("toText")) {
+                toText(new File(args[1]), new File(args[2]));
+            }
+            else if (args[0].equals("resultsToText")) {
+                resultsToText(new File(args[1]), new File(args[2]));
+            }
+            else {
+                System.out.println("Unrecognized Command");
+            }
+        }
+        catch (IOException e) {
+            System.out.println("Conversion failed: " + e.getMessage());
+        }
+    }
+
+
+    /**
+     * Converts a text command file to a binary command file.
+     *
+     * @param input
+     *            the text file to read
+     * @param output
+     *            the binary file to write
+     * @throws IOException
+     *             if either file cannot be used or a line cannot be converted
+     */
+    public static void toBinary(File input, File output) throws IOException {
+        boolean done = false;
+        try (Scanner scanner = new Scanner(input);
+            DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(output)))) {
+            out.write(BinaryCommands.MAGIC);
+            int number = 0;
+            while (scanner.hasNextLine()) {
+                String line = scanner.nextLine();
+                number++;
+                if (!line.trim().isEmpty()) {
+                    try {
+                        BinaryCommands.writeCommand(line, out);
+                    }
+                    catch (IllegalArgumentException e) {
+                        throw new IOException("line " + number
+                            + " cannot be converted (" + e.getMessage()
+                            + "): " + line.trim());
+                    }
+                }
+            }
+            done = true;
+        }
+        finally {
+            if (!done) {
+                output.delete();
+            }
+        }
+    }
+
+
+    /**
+     * Converts a binary command file to a text command file.
+     *
+     * @param input
+     *            the binary file to read
+     * @param output
+     *            the text file to write
+     * @throws IOException
+     *             if either file cannot be used, the input is not a binary
+     *             command file, or a frame cannot be converted
+     */
+    public static void toText(File input, File output) throws IOException {
+        boolean done = false;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+            new FileInputStream(input)));
+            PrintWriter out = new PrintWriter(output)) {
+            if (!BinaryCommands.readMagic(in)) {
+                throw new IOException("Not a binary command file: " + input);
+            }
+            int number = 0;
+            String line;
+            try {
+                while ((line = BinaryCommands.readCommand(in)) != null) {
+                    number++;
+                    out.println(line);
+                }
+            }
+            catch (IOException e) {
+                throw new IOException("frame " + (number + 1)
+                    + " cannot be converted (" + e.getMessage() + ")");
+            }
+            done = true;
+        }
+        finally {
+            if (!done) {
+                output.delete();
+            }
+        }
+    }
+
+
+    /**
+     * Converts a binary result file to the text that the same commands would
+     * have written to the console.
+     *
+     * @param input
+     *            the binary result file to read
+     * @param output
+     *            the text file to write
+     * @throws IOException
+     *             if either file cannot be used or the input is not a
+     *             complete binary result file
+     */
+    public static void resultsToText(File input, File output)
+        throws IOException {
+        boolean done = false;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+            new FileInputStream(input)));
+            PrintStream out = new PrintStream(new BufferedOutputStream(
+                new FileOutputStream(output)))) {
+            BinaryResultSink.replay(in, new TextResultSink(out));
+            done = true;
+        }
+        finally {
+            if (!done) {
+                output.delete();
+            }
+        }
+    }
+
+}
@@ -1,4 +1,7 @@
 import java.awt.Rectangle;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
 
 /**
  * The purpose of this class is to parse a text file into its appropriate, line
@@ -14,6 +17,9 @@ public class CommandProcessor {
     // commands that the command processor
     // feeds to it
     private Database data;
+    // where rejected and unrecognized commands are reported, the same
+    // sink that the database reports its results to
+    private ResultSink out;
 
     /**
      * The constructor for the command processor requires a database instance to
@@ -24,7 +30,33 @@ public class CommandProcessor {
      *               the database object to manipulate
      */
     public CommandProcessor() {
-        data = new Database();
+        this(new TextResultSink(System.out));
+    }
+
+    /**
+     * Creates a command processor whose database and messages report every
+     * result to the given sink.
+     * 
+     * @param out
+     *            the sink that receives every result
+     */
+    public CommandProcessor(ResultSink out) {
+        this(out, 1);
+    }
+
+    /**
+     * Creates a command processor whose database partitions the rectangles
+     * across the given number of shards and reports every result to the given
+     * sink.
+     * 
+     * @param out
+     *               the sink that receives every result
+     * @param shards
+     *               the number of shards, at least 1
+     */
+    public CommandProcessor(ResultSink out, int shards) {
+        this.out = out;
+        data = new Database(Database.DEFAULT_CACHE_SIZE, shards, out);
     }
 
     /**
@@ -32,12 +64,12 @@ public class CommandProcessor {
      * database as required. Each line command will be specified by one of the
      * keywords to perform the actions within the database required. These
      * actions are performed on specified objects and include insert, remove,
-     * regionsearch, search, intersections, and dump. If the command in the file
-     * line is not
-     * one of these, an appropriate message will be written in the console. This
-     * processor method is called for each line in the file. Note that the
-     * methods called will themselves write to the console, this method does
-     * not, only calling methods that do.
+     * removeRange, removeRegion, regionsearch, search, intersections, and
+     * dump. If the command in the file line is not one of these, an
+     * appropriate message will be written in the console. This processor
+     * method is called for each line in the file. Note that the methods called
+     * will themselves write to the console, this method does not, only calling
+     * methods that do.
      * 
      * @param line
      *             a single line from the text file
@@ -51,41 +83,35 @@ public class CommandProcessor {
         switch (lineArr[0]) {
             case "insert":
                 // Insert a rectangle
-                int x = Integer.parseInt(lineArr[2]);
-                int y = Integer.parseInt(lineArr[3]);
-                int width = Integer.parseInt(lineArr[4]);
-                int height = Integer.parseInt(lineArr[5]);
-                if (x >= 0 && y >= 0 && width > 0 && height > 0 && x
-                        + width <= 1024 && y + height <= 1024) {
-                    data.insert(new KVPair<String, RectangleModel>(lineArr[1],
-                            new RectangleModel(x, y, width, height)));
-                } else {
-                    // Invalid input
-                    System.out.println("Rectangle rejected: (" + lineArr[1]
-                            + ", " + x + ", " + y + ", " + width + ", " + height
-                            + ")");
-                }
+                insert(lineArr[1], Integer.parseInt(lineArr[2]), Integer
+                        .parseInt(lineArr[3]), Integer.parseInt(lineArr[4]),
+                        Integer.parseInt(lineArr[5]));
                 break;
             case "remove":
                 // Remove by name
                 if (lineArr.length < 3) {
                     data.remove(lineArr[1]);
                 } else { // Remove by dimensions
-                    int removex = Integer.parseInt(lineArr[1]);
-                    int removey = Integer.parseInt(lineArr[2]);
-                    int removeWidth = Integer.parseInt(lineArr[3]);
-                    int removeHeight = Integer.parseInt(lineArr[4]);
-                    if (removex >= 0 && removey >= 0 && removeWidth > 0
-                            && removeHeight > 0 && removex + removeWidth <= 1024
-                            && removey + removeHeight <= 1024) {
-                        data.remove(removex, removey, removeWidth,
-                                removeHeight);
-                    } else {
-                        // Invalid input
-                        System.out.println("Rectangle rejected: (" + removex
-                                + ", " + removey + ", " + removeWidth + ", "
-                                + removeHeight + ")");
-                    }
+                    remove(Integer.parseInt(lineArr[1]), Integer.parseInt(
+                            lineArr[2]), Integer.parseInt(lineArr[3]), Integer
+                                    .parseInt(lineArr[4]));
+                }
+                break;
+            case "removeRange":
+                // Remove every rectangle with a name in this range
+                data.removeRange(lineArr[1], lineArr[2]);
+                break;
+            case "removeRegion":
+                // Remove every rectangle in this region
+                int clearWidth = Integer.parseInt(lineArr[3]);
+                int clearHeight = Integer.parseInt(lineArr[4]);
+                if (clearWidth > 0 && clearHeight > 0) {
+                    data.removeRegion(Integer.parseInt(lineArr[1]), Integer
+                            .parseInt(lineArr[2]), clearWidth, clearHeight);
+                } else {
+                    // removeRegion input Invalid
+                    out.rejected(null, lineArr[1], lineArr[2], String
+                            .valueOf(clearWidth), String.valueOf(clearHeight));
                 }
                 break;
             case "regionsearch":
@@ -97,9 +123,9 @@ public class CommandProcessor {
                             .parseInt(lineArr[2]), regionWidth, regionHeight);
                 } else {
                     // regionsearch input Invalid
-                    System.out.println("Rectangle rejected: (" + lineArr[1]
-                            + ", " + lineArr[2] + ", " + regionWidth + ", "
-                            + regionHeight + ")");
+                    out.rejected(null, lineArr[1], lineArr[2], String
+                            .valueOf(regionWidth), String.valueOf(
+                                    regionHeight));
                 }
                 break;
             case "intersections":
@@ -115,9 +141,302 @@ public class CommandProcessor {
                 data.dump();
                 break;
             default:
-                System.out.println("Unrecognized Command"); // Unknown command
+                out.unrecognized(); // Unknown command
                 break;
         }
     }
 
+    /**
+     * Reads binary command frames (see BinaryCommands) until the end of the
+     * stream and processes each one exactly as processor would process the
+     * equivalent text line. The arguments are read straight into names and
+     * ints, so no text is normalized, split or parsed. Runs of valid inserts
+     * and runs of searches are grouped the same way processBatch groups them.
+     * The stream must be positioned just after the MAGIC bytes.
+     * 
+     * @param in
+     *           the stream of binary command frames
+     * @throws IOException
+     *            if the stream cannot be read or a frame is malformed
+     */
+    public void processBinary(DataInputStream in) throws IOException {
+        ArrayList<KVPair<String, RectangleModel>> inserts =
+                new ArrayList<KVPair<String, RectangleModel>>();
+        ArrayList<String> searches = new ArrayList<String>();
+        // commands grouped before a bad frame are still processed
+        try {
+            int opcode;
+            while ((opcode = in.read()) != -1) {
+                if (opcode == BinaryCommands.INSERT) {
+                    String name = BinaryCommands.readName(in);
+                    int x = BinaryCommands.readVarint(in);
+                    int y = BinaryCommands.readVarint(in);
+                    int width = BinaryCommands.readVarint(in);
+                    int height = BinaryCommands.readVarint(in);
+                    if (inWorld(x, y, width, height)) {
+                        flushSearches(searches);
+                        inserts.add(new KVPair<String, RectangleModel>(name,
+                                new RectangleModel(x, y, width, height)));
+                        continue;
+                    }
+                    flushInserts(inserts);
+                    flushSearches(searches);
+                    insert(name, x, y, width, height); // prints the rejection
+                    continue;
+                }
+                if (opcode == BinaryCommands.SEARCH) {
+                    flushInserts(inserts);
+                    searches.add(BinaryCommands.readName(in));
+                    continue;
+                }
+                flushInserts(inserts);
+                flushSearches(searches);
+                switch (opcode) {
+                    case BinaryCommands.REMOVE_NAME:
+                        data.remove(BinaryCommands.readName(in));
+                        break;
+                    case BinaryCommands.REMOVE_RECT:
+                        remove(BinaryCommands.readVarint(in), BinaryCommands
+                                .readVarint(in), BinaryCommands.readVarint(in),
+                                BinaryCommands.readVarint(in));
+                        break;
+                    case BinaryCommands.REMOVE_RANGE:
+                        String lo = BinaryCommands.readName(in);
+                        data.removeRange(lo, BinaryCommands.readName(in));
+                        break;
+                    case BinaryCommands.REMOVE_REGION:
+                        removeRegion(BinaryCommands.readVarint(in),
+                                BinaryCommands.readVarint(in), BinaryCommands
+                                        .readVarint(in), BinaryCommands
+                                                .readVarint(in));
+                        break;
+                    case BinaryCommands.REGIONSEARCH:
+                        regionsearch(BinaryCommands.readVarint(in),
+                                BinaryCommands.readVarint(in), BinaryCommands
+                                        .readVarint(in), BinaryCommands
+                                                .readVarint(in));
+                        break;
+                    case BinaryCommands.INTERSECTIONS:
+                        data.intersections();
+                        break;
+                    case BinaryCommands.DUMP:
+                        data.dump();
+                        break;
+                    case BinaryCommands.UNKNOWN:
+                        out.unrecognized();
+                        break;
+                    default:
+                        throw new IOException("Unknown opcode: " + opcode);
+                }
+            }
+        } finally {
+            flushInserts(inserts);
+            flushSearches(searches);
+        }
+    }
+
+    /**
+     * Inserts the rectangle if it is valid, otherwise prints that it was
+     * rejected.
+     * 
+     * @param name
+     *               name of the rectangle
+     * @param x
+     *               x-coordinate of the rectangle
+     * @param y
+     *               y-coordinate of the rectangle
+     * @param width
+     *               width of the rectangle
+     * @param height
+     *               height of the rectangle
+     */
+    private void insert(String name, int x, int y, int width, int height) {
+        if (inWorld(x, y, width, height)) {
+            data.insert(new KVPair<String, RectangleModel>(name,
+                    new RectangleModel(x, y, width, height)));
+        } else {
+            // Invalid input
+            rejected(name, x, y, width, height);
+        }
+    }
+
+    /**
+     * Removes the rectangle with these dimensions if they are valid, otherwise
+     * prints that they were rejected.
+     * 
+     * @param x
+     *               x-coordinate of the rectangle
+     * @param y
+     *               y-coordinate of the rectangle
+     * @param width
+     *               width of the rectangle
+     * @param height
+     *               height of the rectangle
+     */
+    private void remove(int x, int y, int width, int height) {
+        if (inWorld(x, y, width, height)) {
+            data.remove(x, y, width, height);
+        } else {
+            // Invalid input
+            rejected(null, x, y, width, height);
+        }
+    }
+
+    /**
+     * Removes every rectangle in the region if it has some area, otherwise
+     * prints that it was rejected.
+     * 
+     * @param x
+     *               x-coordinate of the region
+     * @param y
+     *               y-coordinate of the region
+     * @param width
+     *               width of the region
+     * @param height
+     *               height of the region
+     */
+    private void removeRegion(int x, int y, int width, int height) {
+        if (width > 0 && height > 0) {
+            data.removeRegion(x, y, width, height);
+        } else {
+            // removeRegion input Invalid
+            rejected(null, x, y, width, height);
+        }
+    }
+
+    /**
+     * Searches the region if it has some area, otherwise prints that it was
+     * rejected.
+     * 
+     * @param x
+     *               x-coordinate of the region
+     * @param y
+     *               y-coordinate of the region
+     * @param width
+     *               width of the region
+     * @param height
+     *               height of the region
+     */
+    private void regionsearch(int x, int y, int width, int height) {
+        if (width > 0 && height > 0) {
+            data.regionsearch(x, y, width, height);
+        } else {
+            // regionsearch input Invalid
+            rejected(null, x, y, width, height);
+        }
+    }
+
+    /**
+     * Processes a batch of lines with the same observable output as calling
+     * processor on each line in turn. Runs of consecutive valid inserts and
+     * runs of consecutive searches are handed to the database as groups, so
+     * that each group is answered by one sorted pass over the SkipList rather
+     * than one descent per command. Every other command ends the current group
+     * and is processed on its own.
+     * 
+     * @param lines
+     *              the lines from the text file, in order
+     */
+    public void processBatch(ArrayList<String> lines) {
+        ArrayList<KVPair<String, RectangleModel>> inserts =
+                new ArrayList<KVPair<String, RectangleModel>>();
+        ArrayList<String> searches = new ArrayList<String>();
+        // commands grouped before a malformed line are still processed,
+        // as they would be line by line
+        try {
+            for (String line : lines) {
+                String[] lineArr = line.replaceAll("\\s+", " ").split(" ");
+                if (lineArr[0].equals("insert") && lineArr.length > 5) {
+                    int x = Integer.parseInt(lineArr[2]);
+                    int y = Integer.parseInt(lineArr[3]);
+                    int width = Integer.parseInt(lineArr[4]);
+                    int height = Integer.parseInt(lineArr[5]);
+                    if (inWorld(x, y, width, height)) {
+                        flushSearches(searches);
+                        inserts.add(new KVPair<String, RectangleModel>(
+                                lineArr[1], new RectangleModel(x, y, width,
+                                        height)));
+                        continue;
+                    }
+                } else if (lineArr[0].equals("search") && lineArr.length > 1) {
+                    flushInserts(inserts);
+                    searches.add(lineArr[1]);
+                    continue;
+                }
+                flushInserts(inserts);
+                flushSearches(searches);
+                processor(line);
+            }
+        } finally {
+            flushInserts(inserts);
+            flushSearches(searches);
+        }
+    }
+
+    /**
+     * Hands a pending group of inserts to the database and empties it.
+     * 
+     * @param inserts
+     *                the pending inserts
+     */
+    private void flushInserts(
+            ArrayList<KVPair<String, RectangleModel>> inserts) {
+        if (!inserts.isEmpty()) {
+            data.insertBatch(inserts);
+            inserts.clear();
+        }
+    }
+
+    /**
+     * Hands a pending group of searches to the database and empties it.
+     * 
+     * @param searches
+     *                 the pending searches
+     */
+    private void flushSearches(ArrayList<String> searches) {
+        if (!searches.isEmpty()) {
+            data.searchBatch(searches);
+            searches.clear();
+        }
+    }
+
+    /**
+     * Reports a rejected command whose arguments were read as ints.
+     * 
+     * @param name
+     *               name given by the command, or null if it takes no name
+     * @param x
+     *               x-coordinate given
+     * @param y
+     *               y-coordinate given
+     * @param width
+     *               width given
+     * @param height
+     *               height given
+     */
+    private void rejected(String name, int x, int y, int width, int height) {
+        out.rejected(name, String.valueOf(x), String.valueOf(y), String
+                .valueOf(width), String.valueOf(height));
+    }
+
+    /**
+     * Checks that a rectangle has some area and lies inside the 1024 by 1024
+     * world.
+     * 
+     * @param x
+     *               x-coordinate of the rectangle
+     * @param y
+     *               y-coordinate of the rectangle
+     * @param width
+     *               width of the rectangle
+     * @param height
+     *               height of the rectangle
+     * @return true if the rectangle is valid
+     */
+    private static boolean inWorld(int x, int y, int width, int height) {
+        // subtracting from 1024 cannot overflow, where x + width can
+        return x >= 0 && y >= 0 && width > 0 && height > 0
+                && width <= 1024 - x && height <= 1024 - y;
+    }
+
 }
@@ -1,6 +1,17 @@
 import java.awt.Rectangle;
+import java.util.AbstractMap.SimpleEntry;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * This class is responsible for interfacing between the command processor and
@@ -17,18 +28,213 @@ import java.util.Iterator;
  */
 public class Database {
 
-    // this is the SkipList object that we are using
-    // a string for the name of the rectangle and then
-    // a rectangle object, these are stored in a KVPair,
-    // see the KVPair class for more information
-    private SkipList<String, RectangleModel> list;
+    // the rectangles are partitioned by the hash of their name across these
+    // shards, each a SkipList with its own spatial index, so all rectangles
+    // that share a name live in the same shard
+    private ArrayList<Shard> shards;
+
+    // the default number of results kept by each query cache
+    static final int DEFAULT_CACHE_SIZE = 64;
+
+    // cached results of search, keyed by name; a mutation only
+    // drops the entry for the name it touched
+    private QueryCache<String> searchCache;
+    // cached results of regionsearch, keyed by region; a mutation
+    // only drops the regions that overlap the rectangle it touched
+    private QueryCache<Rectangle> regionCache;
+
+    // where every result is reported
+    private ResultSink out;
 
     /**
      * The constructor for this class initializes a SkipList object with String
      * and Rectangle a its parameters.
      */
     public Database() {
-        list = new SkipList<String, RectangleModel>();
+        this(new TextResultSink(System.out));
+    }
+
+    /**
+     * Initializes the SkipList with the default cache size, reporting results
+     * to the given sink.
+     * 
+     * @param out
+     *            the sink that receives every result
+     */
+    public Database(ResultSink out) {
+        this(DEFAULT_CACHE_SIZE, out);
+    }
+
+    /**
+     * Initializes the SkipList and the query caches, each of which holds at
+     * most cacheSize results. A cacheSize of 0 disables caching.
+     * 
+     * @param cacheSize
+     *                  the maximum number of results kept by each cache
+     */
+    public Database(int cacheSize) {
+        this(cacheSize, new TextResultSink(System.out));
+    }
+
+    /**
+     * Initializes the SkipList and the query caches, each of which holds at
+     * most cacheSize results, reporting results to the given sink.
+     * 
+     * @param cacheSize
+     *                  the maximum number of results kept by each cache
+     * @param out
+     *                  the sink that receives every result
+     */
+    public Database(int cacheSize, ResultSink out) {
+        this(cacheSize, 1, out);
+    }
+
+    /**
+     * Initializes shardCount SkipList shards and the query caches, reporting
+     * results to the given sink. Queries over every shard run on the common
+     * fork-join pool and their results are merged back into name order, so the
+     * output does not depend on the number of shards apart from the depths
+     * shown by dump.
+     * 
+     * @param cacheSize
+     *                   the maximum number of results kept by each cache
+     * @param shardCount
+     *                   the number of shards, at least 1
+     * @param out
+     *                   the sink that receives every result
+     */
+    public Database(int cacheSize, int shardCount, ResultSink out) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("shardCount must be positive: "
+                    + shardCount);
+        }
+        this.out = out;
+        shards = new ArrayList<Shard>();
+        for (int i = 0; i < shardCount; i++) {
+            shards.add(new Shard());
+        }
+        searchCache = new QueryCache<String>(cacheSize);
+        regionCache = new QueryCache<Rectangle>(cacheSize);
+    }
+
+    /**
+     * Returns the index of the shard that holds every rectangle with the given
+     * name.
+     * 
+     * @param name
+     *             name of a rectangle
+     * @return the index of the shard for that name
+     */
+    private int shardIndex(String name) {
+        return Math.floorMod(name.hashCode(), shards.size());
+    }
+
+    /**
+     * Returns the shard that holds every rectangle with the given name.
+     * 
+     * @param name
+     *             name of a rectangle
+     * @return the shard for that name
+     */
+    private Shard shard(String name) {
+        return shards.get(shardIndex(name));
+    }
+
+    /**
+     * Splits KVPairs into one list per shard, keeping their given order.
+     * 
+     * @param pairs
+     *              the KVPairs to be split
+     * @return the KVPairs of each shard, indexed like the shards
+     */
+    private ArrayList<ArrayList<KVPair<String, RectangleModel>>> byShard(
+            ArrayList<KVPair<String, RectangleModel>> pairs) {
+        ArrayList<ArrayList<KVPair<String, RectangleModel>>> groups =
+                new ArrayList<ArrayList<KVPair<String, RectangleModel>>>();
+        for (int i = 0; i < shards.size(); i++) {
+            groups.add(new ArrayList<KVPair<String, RectangleModel>>());
+        }
+        for (KVPair<String, RectangleModel> pair : pairs) {
+            groups.get(shardIndex(pair.getKey())).add(pair);
+        }
+        return groups;
+    }
+
+    /**
+     * Runs the query on every shard in parallel on the common fork-join pool
+     * and returns the results indexed like the shards.
+     * 
+     * @param <T>
+     *              the type of the result of each shard
+     * @param query
+     *              the query to run on one shard
+     * @return the result of each shard
+     */
+    private <T> List<T> scatter(Function<Shard, T> query) {
+        return shards.parallelStream().map(query).collect(Collectors
+                .toList());
+    }
+
+    /**
+     * Merges runs that are each in name order into one list in name order,
+     * always taking the run whose next element has the smallest name. Since
+     * a name lives in only one shard, equal names never come from different
+     * runs and the order within a run is kept.
+     * 
+     * @param <T>
+     *              the type of the elements
+     * @param runs
+     *              the runs to be merged
+     * @param name
+     *              gives the name of an element
+     * @return every element of the runs in name order
+     */
+    private static <T> ArrayList<T> merge(List<? extends List<T>> runs,
+            Function<T, String> name) {
+        ArrayList<T> merged = new ArrayList<T>();
+        // each entry is the index of a run and of its next element
+        PriorityQueue<int[]> next = new PriorityQueue<int[]>(Math.max(1, runs
+                .size()), (a, b) -> name.apply(runs.get(a[0]).get(a[1]))
+                        .compareTo(name.apply(runs.get(b[0]).get(b[1]))));
+        for (int i = 0; i < runs.size(); i++) {
+            if (!runs.get(i).isEmpty()) {
+                next.add(new int[] { i, 0 });
+            }
+        }
+        while (!next.isEmpty()) {
+            int[] head = next.poll();
+            List<T> run = runs.get(head[0]);
+            merged.add(run.get(head[1]));
+            if (++head[1] < run.size()) {
+                next.add(head);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Merges lists of KVPairs that are each in name order.
+     * 
+     * @param runs
+     *             the lists to be merged
+     * @return every KVPair of the lists in name order
+     */
+    private static ArrayList<KVPair<String, RectangleModel>> mergeByName(
+            List<ArrayList<KVPair<String, RectangleModel>>> runs) {
+        return merge(runs, KVPair::getKey);
+    }
+
+    /**
+     * Drops every cached result that the given rectangle could be part of:
+     * the search result for its name and every cached region it overlaps.
+     * 
+     * @param pair
+     *             the KVPair that was inserted or removed
+     */
+    private void invalidate(KVPair<String, RectangleModel> pair) {
+        searchCache.remove(pair.getKey());
+        Rectangle rec = pair.getValue();
+        regionCache.keySet().removeIf(region -> region.intersects(rec));
     }
 
     /**
@@ -41,9 +247,36 @@ public class Database {
      *             the KVPair to be inserted
      */
     public void insert(KVPair<String, RectangleModel> pair) {
-        list.insert(pair);
-        System.out.println("Rectangle inserted: " + "(" + pair.getKey() + ", "
-                + pair.getValue().toString() + ")");
+        Shard shard = shard(pair.getKey());
+        shard.list.insert(pair);
+        shard.spatial.insert(pair);
+        invalidate(pair);
+        out.inserted(pair.getKey(), pair.getValue());
+    }
+
+    /**
+     * Inserts a batch of KVPairs with one pass over each SkipList instead of
+     * one descent per pair, then reports each insertion in the given order.
+     * The shards are filled in parallel, each by a single thread.
+     * 
+     * @param pairs
+     *              the KVPairs to be inserted, in command order
+     */
+    public void insertBatch(ArrayList<KVPair<String, RectangleModel>> pairs) {
+        ArrayList<ArrayList<KVPair<String, RectangleModel>>> groups = byShard(
+                pairs);
+        IntStream.range(0, shards.size()).parallel().forEach(i -> {
+            ArrayList<KVPair<String, RectangleModel>> sorted =
+                    new ArrayList<KVPair<String, RectangleModel>>(groups.get(
+                            i));
+            sorted.sort(null); // stable, so equal names keep command order
+            shards.get(i).list.insertAll(sorted);
+            shards.get(i).spatial.insertAll(groups.get(i));
+        });
+        for (KVPair<String, RectangleModel> pair : pairs) {
+            invalidate(pair);
+            out.inserted(pair.getKey(), pair.getValue());
+        }
     }
 
     /**
@@ -54,12 +287,14 @@ public class Database {
      *             the name of the rectangle to be removed
      */
     public void remove(String name) {
-        KVPair<String, RectangleModel> rectangle = list.remove(name);
+        Shard shard = shard(name);
+        KVPair<String, RectangleModel> rectangle = shard.list.remove(name);
         if (rectangle == null) {
-            System.out.println("Rectangle not found: (" + name + ")");
+            out.notFound(name);
         } else {
-            System.out.println("Rectangle removed: (" + name + ", " + rectangle
-                    .getValue().toString() + ")");
+            shard.spatial.remove(rectangle);
+            invalidate(rectangle);
+            out.removed(name, rectangle.getValue());
         }
     }
 
@@ -78,14 +313,91 @@ public class Database {
      */
     public void remove(int x, int y, int w, int h) {
 
-        KVPair<String, RectangleModel> rectangle = list.removeByValue(
-                new RectangleModel(x, y, w, h));
+        // the spatial index finds the rectangle without scanning the list;
+        // of the matches in each shard the one first in name order is removed
+        Rectangle rec = new Rectangle(x, y, w, h);
+        KVPair<String, RectangleModel> rectangle = null;
+        for (Shard shard : shards) {
+            KVPair<String, RectangleModel> found = shard.spatial.find(rec);
+            if (found != null && (rectangle == null || found.compareTo(
+                    rectangle) < 0)) {
+                rectangle = found;
+            }
+        }
         if (rectangle == null) {
-            System.out.println("Rectangle not found: (" + x + ", " + y + ", "
-                    + w + ", " + h + ")");
+            out.notFound(rec);
         } else {
-            System.out.println("Rectangle removed: (" + rectangle.getKey()
-                    + ", " + rectangle.getValue().toString() + ")");
+            Shard shard = shard(rectangle.getKey());
+            shard.list.remove(rectangle.getKey(), rectangle.getValue());
+            shard.spatial.remove(rectangle);
+            invalidate(rectangle);
+            out.removed(rectangle.getKey(), rectangle.getValue());
+        }
+    }
+
+    /**
+     * Removes every rectangle whose name lies between lo and hi, inclusive, by
+     * splicing the whole run out of each shard at once. Each removed
+     * rectangle is printed, or an error message if there were none.
+     * 
+     * @param lo
+     *           the first name to be removed
+     * @param hi
+     *           the last name to be removed
+     */
+    public void removeRange(String lo, String hi) {
+        ArrayList<KVPair<String, RectangleModel>> removed = mergeByName(
+                scatter(shard -> {
+                    ArrayList<KVPair<String, RectangleModel>> run = shard.list
+                            .removeRange(lo, hi);
+                    for (KVPair<String, RectangleModel> rectangle : run) {
+                        shard.spatial.remove(rectangle);
+                    }
+                    return run;
+                }));
+        if (removed.isEmpty()) {
+            out.noneInRange(lo, hi);
+        }
+        for (KVPair<String, RectangleModel> rectangle : removed) {
+            invalidate(rectangle);
+            out.removed(rectangle.getKey(), rectangle.getValue());
+        }
+    }
+
+    /**
+     * Removes every rectangle that intersects the specified region, using the
+     * same rule as regionsearch. The rectangles are found with one query on
+     * the spatial index of each shard and printed in name order, or an error
+     * message is printed if there were none.
+     * 
+     * @param x
+     *          x-Coordinate of the region
+     * @param y
+     *          y-Coordinate of the region
+     * @param w
+     *          width of the region
+     * @param h
+     *          height of the region
+     */
+    public void removeRegion(int x, int y, int w, int h) {
+        Rectangle region = new Rectangle(x, y, w, h);
+        ArrayList<KVPair<String, RectangleModel>> removed = mergeByName(
+                scatter(shard -> {
+                    ArrayList<KVPair<String, RectangleModel>> run = shard
+                            .regionsearch(region);
+                    for (KVPair<String, RectangleModel> rectangle : run) {
+                        shard.list.remove(rectangle.getKey(), rectangle
+                                .getValue());
+                        shard.spatial.remove(rectangle);
+                    }
+                    return run;
+                }));
+        if (removed.isEmpty()) {
+            out.noneInRegion(region);
+        }
+        for (KVPair<String, RectangleModel> rectangle : removed) {
+            invalidate(rectangle);
+            out.removed(rectangle.getKey(), rectangle.getValue());
         }
     }
 
@@ -93,8 +405,10 @@ public class Database {
      * Displays all the rectangles inside the specified region. The rectangle
      * must have some area inside the area that is created by the region,
      * meaning, Rectangles that only touch a side or corner of the region
-     * specified will not be said to be in the region. You will need a SkipList
-     * Iterator for this
+     * specified will not be said to be in the region. Results are served from
+     * the region cache when the same region was searched since the last
+     * overlapping mutation, and otherwise from the spatial index of every
+     * shard in parallel, merged into name order.
      * 
      * @param x
      *          x-Coordinate of the region
@@ -107,69 +421,292 @@ public class Database {
      */
     public void regionsearch(int x, int y, int w, int h) {
         Rectangle rec = new Rectangle(x, y, w, h);
-        System.out.println("Rectangles intersecting region (" + rec.toString()
-                + "):");
-        Iterator<KVPair<String, RectangleModel>> a = list.iterator();
-        while (a.hasNext()) {
-            KVPair<String, RectangleModel> myPair = a.next();
-            Rectangle check1 = (Rectangle) (myPair.getValue());
-            if (check1.intersects(rec)) {
-                System.out.println("(" + myPair.getKey() + ", " + myPair
-                        .getValue().toString() + ")");
-            }
+        out.regionHeader(rec);
+        ArrayList<KVPair<String, RectangleModel>> found = regionCache.get(rec);
+        if (found == null) {
+            found = mergeByName(scatter(shard -> shard.regionsearch(rec)));
+            regionCache.put(rec, found);
+        }
+        for (KVPair<String, RectangleModel> myPair : found) {
+            out.rectangle(myPair.getKey(), myPair.getValue());
         }
     }
 
     /**
-     * Prints out all the rectangles that Intersect each other by calling the
-     * SkipList method for intersections. You will need to use two SkipList
-     * Iterators for this
+     * Prints out all the rectangles that Intersect each other. Every rectangle
+     * is taken in name order, and the rectangles it intersects are found
+     * through the spatial index of each shard and merged into name order.
+     * The rectangles are processed in parallel and printed once all are done.
      */
     public void intersections() {
-        System.out.println("Intersections pairs:");
-        Iterator<KVPair<String, RectangleModel>> a = list.iterator();
-        while (a.hasNext()) {
-            KVPair<String, RectangleModel> myPair1 = a.next();
-            Rectangle check1 = (Rectangle) (myPair1.getValue());
-            Iterator<KVPair<String, RectangleModel>> b = list.iterator();
-            while (b.hasNext()) {
-                KVPair<String, RectangleModel> myPair2 = b.next();
-                Rectangle check2 = (Rectangle) (myPair2.getValue());
-                if (check1.intersects(check2) && !myPair1.equals(myPair2)) {
-                    System.out.println("(" + myPair1.getKey() + ", " + myPair1
-                            .getValue().toString() + " | " + myPair2.getKey() + ", "
-                            + myPair2.getValue().toString() + ")");
-                }
+        out.intersectionsHeader();
+        ArrayList<KVPair<String, RectangleModel>> all = mergeByName(scatter(
+                shard -> {
+                    ArrayList<KVPair<String, RectangleModel>> run =
+                            new ArrayList<KVPair<String, RectangleModel>>();
+                    shard.list.forEach(run::add);
+                    return run;
+                }));
+        List<ArrayList<KVPair<String, RectangleModel>>> partners = all
+                .parallelStream().map(myPair1 -> {
+                    ArrayList<ArrayList<KVPair<String, RectangleModel>>> runs =
+                            new ArrayList<ArrayList<KVPair<String,
+                                    RectangleModel>>>();
+                    for (Shard shard : shards) {
+                        ArrayList<KVPair<String, RectangleModel>> run = shard
+                                .regionsearch(myPair1.getValue());
+                        // KVPair equality is identity, so this drops only
+                        // the rectangle itself
+                        run.remove(myPair1);
+                        runs.add(run);
+                    }
+                    return mergeByName(runs);
+                }).collect(Collectors.toList());
+        for (int i = 0; i < all.size(); i++) {
+            KVPair<String, RectangleModel> myPair1 = all.get(i);
+            for (KVPair<String, RectangleModel> myPair2 : partners.get(i)) {
+                out.intersection(myPair1.getKey(), myPair1.getValue(), myPair2
+                        .getKey(), myPair2.getValue());
             }
         }
     }
 
     /**
      * Prints out all the rectangles with the specified name in the SkipList.
-     * This method will delegate the searching to the SkipList class completely.
+     * This method will delegate the searching to the SkipList class completely,
+     * unless the result for this name is still in the search cache.
      * 
      * @param name
      *             name of the Rectangle to be searched for
      */
     public void search(String name) {
-        ArrayList<KVPair<String, RectangleModel>> search = list.search(name);
+        ArrayList<KVPair<String, RectangleModel>> search = searchCache.get(
+                name);
+        if (search == null) {
+            search = shard(name).list.search(name);
+            searchCache.put(name, search);
+        }
+        printSearch(name, search);
+    }
+
+    /**
+     * Searches for a batch of names. Names missing from the search cache are
+     * looked up in one pass over each shard in sorted order, with the shards
+     * searched in parallel, then the results are printed in the given order.
+     * 
+     * @param names
+     *              the names to be searched for, in command order
+     */
+    public void searchBatch(ArrayList<String> names) {
+        // cached results are copied out before any put, since those puts
+        // may evict entries from the cache
+        HashMap<String, ArrayList<KVPair<String, RectangleModel>>> results =
+                new HashMap<>();
+        TreeSet<String> missing = new TreeSet<String>();
+        for (String name : names) {
+            ArrayList<KVPair<String, RectangleModel>> cached = searchCache
+                    .get(name);
+            if (cached != null) {
+                results.put(name, cached);
+            } else {
+                missing.add(name);
+            }
+        }
+        ArrayList<ArrayList<String>> keys = new ArrayList<ArrayList<String>>();
+        for (int i = 0; i < shards.size(); i++) {
+            keys.add(new ArrayList<String>());
+        }
+        for (String name : missing) { // sorted, so each shard's keys are too
+            keys.get(shardIndex(name)).add(name);
+        }
+        List<ArrayList<ArrayList<KVPair<String, RectangleModel>>>> found =
+                IntStream.range(0, shards.size()).parallel().mapToObj(
+                        i -> shards.get(i).list.searchAll(keys.get(i)))
+                        .collect(Collectors.toList());
+        for (int i = 0; i < shards.size(); i++) {
+            for (int j = 0; j < keys.get(i).size(); j++) {
+                results.put(keys.get(i).get(j), found.get(i).get(j));
+                searchCache.put(keys.get(i).get(j), found.get(i).get(j));
+            }
+        }
+        for (String name : names) {
+            ArrayList<KVPair<String, RectangleModel>> search = results.get(
+                    name);
+            printSearch(name, search);
+        }
+    }
+
+    /**
+     * Reports the result of a search for the given name.
+     * 
+     * @param name
+     *               name of the Rectangle that was searched for
+     * @param search
+     *               the rectangles found with that name
+     */
+    private void printSearch(String name,
+            ArrayList<KVPair<String, RectangleModel>> search) {
         if (search.size() > 0) {
-            System.out.println("Rectangles found:");
+            out.found();
             for (KVPair<String, RectangleModel> pair : search) {
-                System.out.println("(" + name + ", " + pair.getValue() + ")");
+                out.rectangle(name, pair.getValue());
             }
         } else {
-            System.out.println("Rectangles not found: " + name);
+            out.searchNotFound(name);
         }
     }
 
     /**
      * Prints out a dump of the SkipList which includes information about the
-     * size of the SkipList and shows all of the contents of the SkipList. This
-     * will all be delegated to the SkipList.
+     * size of the SkipList and shows all of the contents of the SkipList. The
+     * nodes of every shard are merged into name order with their depths, and
+     * the head node is shown with the greatest depth of any shard's head.
      */
     public void dump() {
-        list.dump();
+        out.dumpHeader();
+        List<ArrayList<SimpleEntry<Integer, KVPair<String, RectangleModel>>>>
+                runs = scatter(shard -> {
+                    ArrayList<SimpleEntry<Integer, KVPair<String,
+                            RectangleModel>>> run = new ArrayList<SimpleEntry<
+                                    Integer, KVPair<String, RectangleModel>>>();
+                    Iterator<Integer> depths = shard.list.depths().iterator();
+                    run.add(new SimpleEntry<Integer, KVPair<String,
+                            RectangleModel>>(depths.next(), null)); // the head
+                    for (KVPair<String, RectangleModel> pair : shard.list) {
+                        run.add(new SimpleEntry<Integer, KVPair<String,
+                                RectangleModel>>(depths.next(), pair));
+                    }
+                    return run;
+                });
+        int head = 0;
+        int size = 0;
+        for (int i = 0; i < runs.size(); i++) {
+            head = Math.max(head, runs.get(i).remove(0).getKey());
+            size += shards.get(i).list.size();
+        }
+        out.dumpNode(head, null, null);
+        for (SimpleEntry<Integer, KVPair<String, RectangleModel>> node : merge(
+                runs, entry -> entry.getValue().getKey())) {
+            out.dumpNode(node.getKey(), node.getValue().getKey(), node
+                    .getValue().getValue());
+        }
+        out.dumpSize(size);
+    }
+
+    /**
+     * One partition of the rectangles: a name ordered SkipList and a spatial
+     * index over the same rectangles.
+     */
+    private static class Shard {
+
+        // this is the SkipList object that we are using
+        // a string for the name of the rectangle and then
+        // a rectangle object, these are stored in a KVPair,
+        // see the KVPair class for more information
+        private SkipList<String, RectangleModel> list;
+
+        // the same rectangles ordered by the Z-order code of their corner,
+        // which regionsearch range-scans instead of visiting every rectangle
+        private SpatialIndex spatial;
+
+        /**
+         * Creates an empty shard.
+         */
+        public Shard() {
+            list = new SkipList<String, RectangleModel>();
+            spatial = new SpatialIndex();
+        }
+
+        /**
+         * Finds the rectangles of this shard that intersect the region.
+         * 
+         * @param region
+         *               the region to search
+         * @return the intersecting KVPairs in SkipList order
+         */
+        public ArrayList<KVPair<String, RectangleModel>> regionsearch(
+                Rectangle region) {
+            return inNameOrder(spatial.regionsearch(region));
+        }
+
+        /**
+         * Puts KVPairs found through the spatial index into the order they
+         * have in the name ordered SkipList. Pairs are sorted by name, and
+         * pairs that share a name are put back in SkipList order by searching
+         * for that name.
+         * 
+         * @param found
+         *              the KVPairs in any order
+         * @return the same KVPairs in SkipList order
+         */
+        private ArrayList<KVPair<String, RectangleModel>> inNameOrder(
+                ArrayList<KVPair<String, RectangleModel>> found) {
+            ArrayList<KVPair<String, RectangleModel>> sorted =
+                    new ArrayList<KVPair<String, RectangleModel>>(found);
+            sorted.sort(null);
+            ArrayList<KVPair<String, RectangleModel>> ordered =
+                    new ArrayList<KVPair<String, RectangleModel>>();
+            int i = 0;
+            while (i < sorted.size()) {
+                String name = sorted.get(i).getKey();
+                int j = i + 1;
+                while (j < sorted.size() && sorted.get(j).getKey().equals(
+                        name)) {
+                    j++;
+                }
+                if (j - i == 1) {
+                    ordered.add(sorted.get(i));
+                } else {
+                    // KVPair equality is identity, so the set holds these
+                    // pairs
+                    HashSet<KVPair<String, RectangleModel>> run =
+                            new HashSet<KVPair<String, RectangleModel>>(sorted
+                                    .subList(i, j));
+                    for (KVPair<String, RectangleModel> pair : list.search(
+                            name)) {
+                        if (run.contains(pair)) {
+                            ordered.add(pair);
+                        }
+                    }
+                }
+                i = j;
+            }
+            return ordered;
+        }
+
+    }
+
+    /**
+     * A bounded cache of query results that evicts the least recently used
+     * entry once it holds more than its capacity.
+     * 
+     * @param <Q>
+     *            the query that the results are cached under
+     */
+    @SuppressWarnings("serial")
+    private static class QueryCache<Q> extends
+            LinkedHashMap<Q, ArrayList<KVPair<String, RectangleModel>>> {
+
+        // the maximum number of cached results
+        private int capacity;
+
+        /**
+         * Creates an empty cache that keeps at most capacity results.
+         * 
+         * @param capacity
+         *                 the maximum number of cached results
+         */
+        public QueryCache(int capacity) {
+            super(16, 0.75f, true); // access order gives LRU eviction
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(
+                Map.Entry<Q, ArrayList<KVPair<String, RectangleModel>>> eldest) {
+            return size() > capacity;
+        }
+
     }
 
 }
@@ -1,5 +1,13 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Scanner;
 
 // On my honor:
@@ -39,35 +47,59 @@ public class Rectangle1 {
      *
      * @param args
      *            The name of the command file passed in as a command line
-     *            argument.
+     *            argument, optionally followed by the name of a file that
+     *            receives the results as binary frames instead of the console.
      */
     public static void main(String[] args) {
         // the file object
         File file = null;
+        // the binary results file, if one was given
+        DataOutputStream results = null;
 
-        
 
         // Attempts to open the file and scan through it
         try {
         	// takes the first command line argument and opens that file
-            file = new File("Data/P1test1.txt");
-           
+            file = new File(args.length > 0 ? args[0] : "Data/P1test1.txt");
+
+            // creates a command processor object that writes its results
+            // to the console, or as binary frames to the second argument
+            CommandProcessor cmdProc;
+            if (args.length > 1) {
+                results = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(args[1])));
+                cmdProc = new CommandProcessor(new BinaryResultSink(results));
+            }
+            else {
+                cmdProc = new CommandProcessor();
+            }
+
+            // binary command files start with the magic bytes and are
+            // processed frame by frame
+            try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+                if (BinaryCommands.readMagic(in)) {
+                    cmdProc.processBinary(in);
+                    return;
+                }
+            }
+
             // creates a scanner object
             Scanner scanner = new Scanner(file);
-           
-            // creates a command processor object
-            CommandProcessor cmdProc = new CommandProcessor();
-            // reads the entire file and processes the commands
-            // line by line
+
+            // reads the entire file, then processes the commands
+            // as a batch in line order
+            ArrayList<String> lines = new ArrayList<String>();
             while (scanner.hasNextLine()) {
                 String line = scanner.nextLine();
                 // determines if the file has more lines to read
                 if (!line.trim().isEmpty()) {
-                    cmdProc.processor(line.trim());
+                    lines.add(line.trim());
                 }
             }
             // closes the scanner
             scanner.close();
+            cmdProc.processBatch(lines);
         }
         // catches the exception if the file cannot be found
         // and outputs the correct information to the console
@@ -75,6 +107,23 @@ public class Rectangle1 {
             System.out.println("Invalid file");
             e.printStackTrace();
         }
+        // catches a binary file that cannot be read
+        catch (IOException e) {
+            System.out.println("Invalid file");
+            e.printStackTrace();
+        }
+        // closes the binary results file, flushing the last frames
+        finally {
+            if (results != null) {
+                try {
+                    results.close();
+                }
+                catch (IOException e) {
+                    System.out.println("Invalid file");
+                    e.printStackTrace();
+                }
+            }
+        }
 
     }
 }
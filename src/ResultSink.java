@@ -0,0 +1,183 @@
+import java.awt.Rectangle;
+
+/**
+ * This interface receives every result that the command processor and the
+ * database produce, one call per result line. TextResultSink writes the
+ * familiar console text, and BinaryResultSink writes compact frames for
+ * programs that read the results instead of people.
+ *
+ * @author CS Staff
+ *
+ * @version 2026-10-19
+ */
+public interface ResultSink {
+
+    /**
+     * A rectangle was inserted.
+     *
+     * @param name
+     *            name of the rectangle
+     * @param rec
+     *            the rectangle
+     */
+    void inserted(String name, Rectangle rec);
+
+
+    /**
+     * A command was rejected because its rectangle or region was invalid. The
+     * arguments are passed exactly as the command gave them.
+     *
+     * @param name
+     *            name given by the command, or null if it takes no name
+     * @param x
+     *            x-coordinate as given
+     * @param y
+     *            y-coordinate as given
+     * @param w
+     *            width as given
+     * @param h
+     *            height as given
+     */
+    void rejected(String name, String x, String y, String w, String h);
+
+
+    /**
+     * A rectangle was removed.
+     *
+     * @param name
+     *            name of the rectangle
+     * @param rec
+     *            the rectangle
+     */
+    void removed(String name, Rectangle rec);
+
+
+    /**
+     * No rectangle with this name could be removed.
+     *
+     * @param name
+     *            the name that was not found
+     */
+    void notFound(String name);
+
+
+    /**
+     * No rectangle with these dimensions could be removed.
+     *
+     * @param rec
+     *            the dimensions that were not found
+     */
+    void notFound(Rectangle rec);
+
+
+    /**
+     * No rectangle had a name in the range to be removed.
+     *
+     * @param lo
+     *            the first name of the range
+     * @param hi
+     *            the last name of the range
+     */
+    void noneInRange(String lo, String hi);
+
+
+    /**
+     * No rectangle intersected the region to be removed.
+     *
+     * @param region
+     *            the region
+     */
+    void noneInRegion(Rectangle region);
+
+
+    /**
+     * The results of a regionsearch follow.
+     *
+     * @param region
+     *            the region searched
+     */
+    void regionHeader(Rectangle region);
+
+
+    /**
+     * One rectangle found by a regionsearch or a search.
+     *
+     * @param name
+     *            name of the rectangle
+     * @param rec
+     *            the rectangle
+     */
+    void rectangle(String name, Rectangle rec);
+
+
+    /**
+     * The intersecting pairs follow.
+     */
+    void intersectionsHeader();
+
+
+    /**
+     * One pair of intersecting rectangles.
+     *
+     * @param name1
+     *            name of the first rectangle
+     * @param rec1
+     *            the first rectangle
+     * @param name2
+     *            name of the second rectangle
+     * @param rec2
+     *            the second rectangle
+     */
+    void intersection(String name1, Rectangle rec1, String name2,
+        Rectangle rec2);
+
+
+    /**
+     * The rectangles found by a search follow.
+     */
+    void found();
+
+
+    /**
+     * A search found no rectangle with this name.
+     *
+     * @param name
+     *            the name searched for
+     */
+    void searchNotFound(String name);
+
+
+    /**
+     * The nodes of a dump follow.
+     */
+    void dumpHeader();
+
+
+    /**
+     * One node of a dump.
+     *
+     * @param depth
+     *            the number of levels of the node
+     * @param name
+     *            name of the rectangle, or null for the head node
+     * @param rec
+     *            the rectangle, or null for the head node
+     */
+    void dumpNode(int depth, String name, Rectangle rec);
+
+
+    /**
+     * The end of a dump.
+     *
+     * @param size
+     *            the number of rectangles stored
+     */
+    void dumpSize(int size);
+
+
+    /**
+     * A command was not recognized.
+     */
+    void unrecognized();
+
+}
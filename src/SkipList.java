@@ -1,6 +1,7 @@
 import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Random;
 
 
@@ -27,7 +28,7 @@ public class SkipList<K extends Comparable<? super K>, V>
     public SkipList() {
         head = new SkipNode(null, 0);
         size = 0;
-        level = -1;
+        level = 0;
     }
 
 
@@ -70,6 +71,34 @@ public class SkipList<K extends Comparable<? super K>, V>
     }
 
 
+    /**
+     * Returns every KVPair whose key lies between lo and hi, inclusive, in key
+     * order. The search descends once to lo and then walks the bottom level.
+     * 
+     * @param lo
+     *            the smallest key to be returned
+     * @param hi
+     *            the largest key to be returned
+     * @return the KVPairs in the range
+     */
+    public ArrayList<KVPair<K, V>> rangeSearch(K lo, K hi) {
+        SkipNode x = head; // Dummy header node
+        for (int i = level; i >= 0; i--) { // For each level...
+            while ((x.forward[i] != null) && (x.forward[i].pair.getKey()
+                .compareTo(lo) < 0)) { // go forward
+                x = x.forward[i];
+            }
+        }
+        x = x.forward[0]; // First record at or after lo
+        ArrayList<KVPair<K, V>> arr = new ArrayList<KVPair<K, V>>();
+        while ((x != null) && (x.pair.getKey().compareTo(hi) <= 0)) {
+            arr.add(x.pair);
+            x = x.forward[0];
+        }
+        return arr;
+    }
+
+
     /**
      * @return the size of the SkipList
      */
@@ -111,6 +140,110 @@ public class SkipList<K extends Comparable<? super K>, V>
     }
 
 
+    /**
+     * Inserts every KVPair of a batch in one left to right pass. The pairs must
+     * be sorted by key; pairs with equal keys end up in the same order as if
+     * they had been inserted one at a time in list order.
+     * 
+     * @param pairs
+     *            the KVPairs to be inserted, sorted by key
+     */
+    @SuppressWarnings("unchecked")
+    public void insertAll(ArrayList<KVPair<K, V>> pairs) {
+        int[] levels = new int[pairs.size()];
+        int maxLevel = 0;
+        for (int p = 0; p < levels.length; p++) {
+            levels[p] = randomLevel();
+            maxLevel = Math.max(maxLevel, levels[p]);
+        }
+        if (maxLevel > head.level) { // Grow the header once for the batch
+            adjustHead(maxLevel);
+        }
+        SkipNode[] update = startPath();
+        for (int p = 0; p < levels.length; p++) {
+            KVPair<K, V> it = pairs.get(p);
+            resumePath(it.getKey(), update);
+            SkipNode a = new SkipNode(it, levels[p]);
+            for (int i = 0; i <= levels[p]; i++) { // Splice into list
+                a.forward[i] = update[i].forward[i]; // Who a points to
+                update[i].forward[i] = a; // Who points to a
+            }
+            size++;
+        }
+    }
+
+
+    /**
+     * Searches for a batch of keys in one left to right pass. The keys must be
+     * sorted; each search resumes from where the previous one stopped instead
+     * of descending from the head again.
+     * 
+     * @param keys
+     *            the keys to be searched for, sorted
+     * @return the matching KVPairs for each key, in the order of keys
+     */
+    public ArrayList<ArrayList<KVPair<K, V>>> searchAll(ArrayList<K> keys) {
+        ArrayList<ArrayList<KVPair<K, V>>> results =
+            new ArrayList<ArrayList<KVPair<K, V>>>();
+        SkipNode[] update = startPath();
+        for (K key : keys) {
+            resumePath(key, update);
+            SkipNode x = update[0].forward[0];
+            ArrayList<KVPair<K, V>> arr = new ArrayList<KVPair<K, V>>();
+            while ((x != null) && (x.pair.getKey().compareTo(key) == 0)) {
+                arr.add(x.pair);
+                x = x.forward[0];
+            }
+            results.add(arr);
+        }
+        return results;
+    }
+
+
+    /**
+     * Returns an update path with every level pointing at the head node.
+     * 
+     * @return the starting update path
+     */
+    @SuppressWarnings("unchecked")
+    private SkipNode[] startPath() {
+        SkipNode[] update = (SkipNode[])Array.newInstance(
+            SkipList.SkipNode.class, head.level + 1);
+        for (int i = 0; i <= head.level; i++) {
+            update[i] = head;
+        }
+        return update;
+    }
+
+
+    /**
+     * Moves the update path forward so that update[i] is the last node on
+     * level i with a key smaller than key. Every node already on the path must
+     * have a key smaller than key. At each level the search starts from
+     * whichever is further along: the node reached on the level above or the
+     * node the previous search stopped at on this level.
+     * 
+     * @param key
+     *            the key to find the predecessors of
+     * @param update
+     *            the update path to move forward
+     */
+    private void resumePath(K key, SkipNode[] update) {
+        SkipNode x = head;
+        for (int i = head.level; i >= 0; i--) {
+            if (x == head || (update[i] != head && update[i].pair.getKey()
+                .compareTo(x.pair.getKey()) > 0)) {
+                x = update[i];
+            }
+            while ((x.forward[i] != null) && (x.forward[i].pair.getKey()
+                .compareTo(key) < 0)) {
+                x = x.forward[i];
+            }
+            update[i] = x;
+        }
+    }
+
+
     /**
      * Increases the number of levels in head so that no element has more
      * indices than the head.
@@ -120,117 +253,149 @@ public class SkipList<K extends Comparable<? super K>, V>
      */
     @SuppressWarnings("unchecked")
     private void adjustHead(int newLevel) {
-    	SkipNode temp = head;
-    head = new SkipNode(null, newLevel);
-    for (int i = 0; i <= level; i++) {
-      head.forward[i] = temp.forward[i];
-    }
-    head.level = newLevel;
+        SkipNode temp = head;
+        head = new SkipNode(null, newLevel);
+        for (int i = 0; i <= temp.level; i++) {
+            head.forward[i] = temp.forward[i];
+        }
+        head.level = newLevel;
+        level = newLevel;
     }
 
 
     /**
-     * Removes the KVPair that is passed in as a parameter and returns true if
-     * the pair was valid and false if not.
+     * Removes the first KVPair with the specified key. The search descends
+     * once to the key and then splices the node out of every level it is on.
      * 
-     * @param pair
-     *            the KVPair to be removed
-     * @return returns the removed pair if the pair was valid and null if not
+     * @param key
+     *            the key of the KVPair to be removed
+     * @return returns the removed pair if the key was found and null if not
      */
-
     @SuppressWarnings("unchecked")
     public KVPair<K, V> remove(K key) {
-    	SkipNode[] update = (SkipNode[])Array.newInstance(SkipList.SkipNode.class, head.level + 1);
-        boolean removed = false;
+        SkipNode[] update = (SkipNode[])Array.newInstance(
+            SkipList.SkipNode.class, head.level + 1);
         SkipNode current = head;
-        SkipNode a = head;
         // access the SkipList starting from the head node at the highest level
         for (int i = head.level; i >= 0; i--) {
-            // Move down the levels until the target key is found or a larger key is encountered
-            while (current.forward[i] != null && current.forward[i].pair.getKey().compareTo(key) < 0) {
+            // Move down the levels until a larger or equal key is encountered
+            while (current.forward[i] != null && current.forward[i].pair
+                .getKey().compareTo(key) < 0) {
                 current = current.forward[i];
-                update[i] = current;
-            }
-            // If the target key is found,
-            if (current.forward[i] != null && current.forward[i].pair.getKey().compareTo(key) == 0) {
-                removed = true;
-                a = current.forward[i];
-                for (int j = 0; j <= level; j++) { // Splice into list
-                    update[j].forward[j] = a.forward[j]; // What a points to
-                }
-                size--;
-                break;
             }
+            update[i] = current; // Track end at level i
         }
+        SkipNode a = current.forward[0];
         // Return null if the target key is not found
-        if (!removed) {
+        if (a == null || a.pair.getKey().compareTo(key) != 0) {
             return null;
         }
-        else {
-            KVPair<K, V> myPair = new KVPair<>(key, a.pair.getValue());
-            return myPair;
+        for (int j = 0; j <= a.level; j++) { // Splice out of list
+            update[j].forward[j] = a.forward[j]; // What a points to
         }
-
+        size--;
+        return a.pair;
     }
 
 
     /**
-     * Removes a KVPair with the specified value.
+     * Removes the KVPair with the specified key whose value is the object val.
+     * This lets callers remove one particular entry when several share a key,
+     * even if their values are equal.
      * 
+     * @param key
+     *            the key of the KVPair to be removed
      * @param val
      *            the value of the KVPair to be removed
-     * @return returns true if the removal was successful
+     * @return returns the removed pair if it was found and null if not
      */
-    public KVPair<K, V> removeByValue(V val) {
-    	// Search for the value to remove
-        SkipNode[] update = (SkipNode[])Array.newInstance(SkipList.SkipNode.class, head.level + 1);
-        boolean removed = false;
+    @SuppressWarnings("unchecked")
+    public KVPair<K, V> remove(K key, V val) {
+        SkipNode[] update = (SkipNode[])Array.newInstance(
+            SkipList.SkipNode.class, head.level + 1);
         SkipNode current = head;
-        SkipNode a = head;
-
-        // access the SkipList starting from the head node at the highest level
-        for (int i = head.level; i >= 0; i--) {
-            // Move down the levels until the target key is found or a larger key is encountered
-            while (current.forward[i] != null && current.forward[i].pair.getValue().equals(val) == false) {
+        for (int i = head.level; i >= 0; i--) { // Find the first equal key
+            while (current.forward[i] != null && current.forward[i].pair
+                .getKey().compareTo(key) < 0) {
                 current = current.forward[i];
-                update[i] = current;
             }
-            // If the target key is found,
-            if (current.forward[i] != null && current.forward[i].pair.getValue().equals(val)) {
-                removed = true;
-                a = current.forward[i];
-                for (int j = 0; j <= level; j++) { // Splice into list
-                    update[j].forward[j] = a.forward[j]; // what a points to
+            update[i] = current; // Track end at level i
+        }
+        // Walk the run of equal keys, keeping update pointing at the
+        // predecessors of the node under consideration
+        while (current.forward[0] != null && current.forward[0].pair.getKey()
+            .compareTo(key) == 0) {
+            SkipNode a = current.forward[0];
+            if (a.pair.getValue() == val) {
+                for (int j = 0; j <= a.level; j++) { // Splice out of list
+                    update[j].forward[j] = a.forward[j]; // What a points to
                 }
                 size--;
-                break;
+                return a.pair;
             }
+            for (int j = 0; j <= a.level; j++) {
+                update[j] = a;
+            }
+            current = a;
         }
-        // Return null if the target key is not found
-        if (!removed) {
-            return null;
+        return null;
+    }
+
+
+    /**
+     * Removes every KVPair whose key lies between lo and hi, inclusive. The
+     * search descends once to lo, and then each level is spliced past the
+     * whole run of removed nodes at once.
+     * 
+     * @param lo
+     *            the smallest key to be removed
+     * @param hi
+     *            the largest key to be removed
+     * @return the removed KVPairs in key order
+     */
+    @SuppressWarnings("unchecked")
+    public ArrayList<KVPair<K, V>> removeRange(K lo, K hi) {
+        SkipNode[] update = (SkipNode[])Array.newInstance(
+            SkipList.SkipNode.class, head.level + 1);
+        SkipNode current = head;
+        for (int i = head.level; i >= 0; i--) { // Find the end before lo
+            while (current.forward[i] != null && current.forward[i].pair
+                .getKey().compareTo(lo) < 0) {
+                current = current.forward[i];
+            }
+            update[i] = current; // Track end at level i
         }
-        else {
-            KVPair<K, V> myPair = new KVPair<>(a.pair.getKey(), a.pair.getValue());
-            return myPair;
+        ArrayList<KVPair<K, V>> removed = new ArrayList<KVPair<K, V>>();
+        for (int i = 0; i <= head.level; i++) {
+            SkipNode x = update[i].forward[i];
+            while (x != null && x.pair.getKey().compareTo(hi) <= 0) {
+                if (i == 0) {
+                    removed.add(x.pair);
+                }
+                x = x.forward[i];
+            }
+            update[i].forward[i] = x; // Skip the whole run on this level
         }
+        size -= removed.size();
+        return removed;
     }
 
 
     /**
-     * Prints out the SkipList in a human readable format to the console.
+     * Returns the depth of the head node followed by the depth of every node
+     * in key order, for dumping the SkipList.
+     * 
+     * @return the depths of the nodes
      */
-    public void dump() {
-        System.out.println("SkipList dump:");
-        System.out.println("Node has depth " + this.head.forward.length
-            + ", Value (null)");
+    public ArrayList<Integer> depths() {
+        ArrayList<Integer> depths = new ArrayList<Integer>();
         SkipNode start = head;
+        depths.add(start.forward.length);
         while (start.forward[0] != null) {
             start = start.forward[0];
-            System.out.println("Node has depth " + start.forward.length
-                + ", Value " + start.pair.toString());
+            depths.add(start.forward.length);
         }
-        System.out.println("SkipList size is: " + this.size);
+        return depths;
     }
 
     /**
@@ -279,9 +444,16 @@ public class SkipList<K extends Comparable<? super K>, V>
     }
 
 
+    /**
+     * This class walks the bottom level of the SkipList, returning every
+     * KVPair in key order.
+     */
     private class SkipListIterator implements Iterator<KVPair<K, V>> {
         private SkipNode current;
 
+        /**
+         * Starts the iterator at the head node, before the first element.
+         */
         public SkipListIterator() {
             current = head;
         }
@@ -289,23 +461,23 @@ public class SkipList<K extends Comparable<? super K>, V>
 
         @Override
         public boolean hasNext() {
-            // TODO Auto-generated method stub
-            return false;
+            return current.forward[0] != null;
         }
 
 
         @Override
         public KVPair<K, V> next() {
-            // TODO Auto-generated method stub
-
-            return null;
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            current = current.forward[0];
+            return current.pair;
         }
 
     }
 
     @Override
     public Iterator<KVPair<K, V>> iterator() {
-        // TODO Auto-generated method stub
         return new SkipListIterator();
     }
 
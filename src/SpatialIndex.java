@@ -0,0 +1,252 @@
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.TreeMap;
+
+/**
+ * This class keeps a second SkipList of the rectangles keyed by the Z-order
+ * (Morton) code of their lower left corner in the 1024 by 1024 world. Nearby
+ * corners get nearby codes, so a region query can be answered by range scans
+ * over a few runs of codes instead of visiting every rectangle. The values
+ * stored are the same KVPairs that are stored in the name ordered SkipList.
+ * Since only corners are indexed, a query is widened by the largest width and
+ * height currently stored; while a very large rectangle is in the index every
+ * query scans most of the world, and the index is no faster than a full scan.
+ *
+ * @author CS Staff
+ *
+ * @version 2026-10-19
+ */
+public class SpatialIndex {
+
+    // the side length of the world, which must be a power of two
+    private static final int WORLD_SIZE = 1024;
+    // cells at or below this side length are scanned whole instead of being
+    // split further, which keeps the number of ranges small
+    private static final int MIN_CELL = 4;
+
+    // the rectangles keyed by the Morton code of their corner
+    private SkipList<Integer, KVPair<String, RectangleModel>> list;
+    // how many stored rectangles have each width and height; the largest
+    // keys bound how far left of or below a region an intersecting corner
+    // can be, and shrink again when the large rectangles are removed
+    private TreeMap<Integer, Integer> widths;
+    private TreeMap<Integer, Integer> heights;
+
+    /**
+     * Initializes an empty index.
+     */
+    public SpatialIndex() {
+        list = new SkipList<Integer, KVPair<String, RectangleModel>>();
+        widths = new TreeMap<Integer, Integer>();
+        heights = new TreeMap<Integer, Integer>();
+    }
+
+
+    /**
+     * Interleaves the bits of x and y, x taking the even bits, to form the
+     * Morton code of the point.
+     *
+     * @param x
+     *            x-coordinate of the point
+     * @param y
+     *            y-coordinate of the point
+     * @return the Morton code of the point
+     */
+    static int morton(int x, int y) {
+        int code = 0;
+        for (int bit = 0; (1 << bit) < WORLD_SIZE; bit++) {
+            code |= ((x >> bit) & 1) << (2 * bit);
+            code |= ((y >> bit) & 1) << (2 * bit + 1);
+        }
+        return code;
+    }
+
+
+    /**
+     * Adds the KVPair to the index.
+     *
+     * @param pair
+     *            the KVPair to be added
+     */
+    public void insert(KVPair<String, RectangleModel> pair) {
+        RectangleModel rec = pair.getValue();
+        list.insert(new KVPair<Integer, KVPair<String, RectangleModel>>(morton(
+            rec.x, rec.y), pair));
+        count(rec, 1);
+    }
+
+
+    /**
+     * Adds a batch of KVPairs to the index in one pass over the SkipList.
+     *
+     * @param pairs
+     *            the KVPairs to be added, in insertion order
+     */
+    public void insertAll(ArrayList<KVPair<String, RectangleModel>> pairs) {
+        ArrayList<KVPair<Integer, KVPair<String, RectangleModel>>> entries =
+            new ArrayList<KVPair<Integer, KVPair<String, RectangleModel>>>();
+        for (KVPair<String, RectangleModel> pair : pairs) {
+            RectangleModel rec = pair.getValue();
+            entries.add(new KVPair<Integer, KVPair<String, RectangleModel>>(
+                morton(rec.x, rec.y), pair));
+            count(rec, 1);
+        }
+        entries.sort(null); // stable, so equal codes keep insertion order
+        list.insertAll(entries);
+    }
+
+
+    /**
+     * Removes the KVPair from the index. The pair must be the same object that
+     * was inserted.
+     *
+     * @param pair
+     *            the KVPair to be removed
+     * @return true if the pair was in the index
+     */
+    public boolean remove(KVPair<String, RectangleModel> pair) {
+        RectangleModel rec = pair.getValue();
+        if (list.remove(morton(rec.x, rec.y), pair) == null) {
+            return false;
+        }
+        count(rec, -1);
+        return true;
+    }
+
+
+    /**
+     * Adds delta to the counts of the rectangle's width and height, dropping
+     * sizes whose count reaches zero.
+     *
+     * @param rec
+     *            the rectangle being added or removed
+     * @param delta
+     *            1 when adding and -1 when removing
+     */
+    private void count(Rectangle rec, int delta) {
+        widths.merge(rec.width, delta, (a, b) -> a + b == 0 ? null : a + b);
+        heights.merge(rec.height, delta, (a, b) -> a + b == 0 ? null : a + b);
+    }
+
+
+    /**
+     * Finds the KVPair whose rectangle has exactly the given position and
+     * size. When several match, the one that comes first by name is returned,
+     * which is the one a scan of the name ordered SkipList would find first.
+     *
+     * @param rec
+     *            the rectangle to look for
+     * @return the matching KVPair, or null if there is none
+     */
+    public KVPair<String, RectangleModel> find(Rectangle rec) {
+        KVPair<String, RectangleModel> first = null;
+        for (KVPair<Integer, KVPair<String, RectangleModel>> entry : list
+            .search(morton(rec.x, rec.y))) {
+            KVPair<String, RectangleModel> pair = entry.getValue();
+            if (pair.getValue().equals(rec) && (first == null || pair
+                .compareTo(first) < 0)) {
+                first = pair;
+            }
+        }
+        return first;
+    }
+
+
+    /**
+     * Returns every KVPair whose rectangle intersects the region, in Z-order
+     * of their corners.
+     *
+     * @param region
+     *            the region to search
+     * @return the intersecting KVPairs
+     */
+    public ArrayList<KVPair<String, RectangleModel>> regionsearch(
+        Rectangle region) {
+        ArrayList<KVPair<String, RectangleModel>> found =
+            new ArrayList<KVPair<String, RectangleModel>>();
+        if (widths.isEmpty()) {
+            return found;
+        }
+        // An intersecting rectangle has its corner left of and below the far
+        // edges of the region, and no further left or down than its size.
+        // The bounds are computed in long since the region may lie near the
+        // int limits, where Rectangle.intersects also guards against overflow
+        long loX = Math.max(0, (long)region.x - widths.lastKey() + 1);
+        long loY = Math.max(0, (long)region.y - heights.lastKey() + 1);
+        long hiX = Math.min(WORLD_SIZE - 1, (long)region.x + region.width
+            - 1);
+        long hiY = Math.min(WORLD_SIZE - 1, (long)region.y + region.height
+            - 1);
+        if (loX > hiX || loY > hiY) {
+            return found;
+        }
+        ArrayList<int[]> ranges = new ArrayList<int[]>();
+        decompose(0, 0, WORLD_SIZE, (int)loX, (int)loY, (int)hiX, (int)hiY,
+            ranges);
+        for (int[] range : ranges) {
+            for (KVPair<Integer, KVPair<String, RectangleModel>> entry : list
+                .rangeSearch(range[0], range[1])) {
+                if (entry.getValue().getValue().intersects(region)) {
+                    found.add(entry.getValue());
+                }
+            }
+        }
+        return found;
+    }
+
+
+    /**
+     * Splits the square cell into quadrants until each piece is either inside
+     * the box, outside it, or small enough to scan whole, and appends the
+     * Morton code range of every piece that is kept. Quadrants are visited in
+     * Z-order, so adjacent ranges are merged as they are appended.
+     *
+     * @param cellX
+     *            x-coordinate of the cell
+     * @param cellY
+     *            y-coordinate of the cell
+     * @param size
+     *            side length of the cell
+     * @param loX
+     *            smallest x of the box
+     * @param loY
+     *            smallest y of the box
+     * @param hiX
+     *            largest x of the box
+     * @param hiY
+     *            largest y of the box
+     * @param ranges
+     *            the list of inclusive Morton code ranges to append to
+     */
+    private static void decompose(int cellX, int cellY, int size, int loX,
+        int loY, int hiX, int hiY, ArrayList<int[]> ranges) {
+        int endX = cellX + size - 1;
+        int endY = cellY + size - 1;
+        if (endX < loX || cellX > hiX || endY < loY || cellY > hiY) {
+            return; // outside the box
+        }
+        boolean inside = cellX >= loX && endX <= hiX && cellY >= loY
+            && endY <= hiY;
+        if (inside || size <= MIN_CELL) {
+            int first = morton(cellX, cellY);
+            int last = first + size * size - 1;
+            int[] previous = ranges.isEmpty()
+                ? null
+                : ranges.get(ranges.size() - 1);
+            if (previous != null && previous[1] + 1 == first) {
+                previous[1] = last;
+            }
+            else {
+                ranges.add(new int[] { first, last });
+            }
+            return;
+        }
+        int half = size / 2;
+        decompose(cellX, cellY, half, loX, loY, hiX, hiY, ranges);
+        decompose(cellX + half, cellY, half, loX, loY, hiX, hiY, ranges);
+        decompose(cellX, cellY + half, half, loX, loY, hiX, hiY, ranges);
+        decompose(cellX + half, cellY + half, half, loX, loY, hiX, hiY,
+            ranges);
+    }
+
+}
@@ -0,0 +1,161 @@
+import java.awt.Rectangle;
+import java.io.PrintStream;
+
+/**
+ * This class writes results as the human readable lines that the project
+ * spec describes.
+ *
+ * @author CS Staff
+ *
+ * @version 2026-10-19
+ */
+public class TextResultSink implements ResultSink {
+
+    // where the lines are written
+    private PrintStream out;
+
+    /**
+     * Creates a sink that writes lines to the given stream.
+     *
+     * @param out
+     *            the stream to write to, usually System.out
+     */
+    public TextResultSink(PrintStream out) {
+        this.out = out;
+    }
+
+
+    /**
+     * Formats a named rectangle as "name, x, y, w, h".
+     *
+     * @param name
+     *            name of the rectangle
+     * @param rec
+     *            the rectangle
+     * @return the formatted rectangle
+     */
+    private static String format(String name, Rectangle rec) {
+        return name + ", " + format(rec);
+    }
+
+
+    /**
+     * Formats a rectangle as "x, y, w, h".
+     *
+     * @param rec
+     *            the rectangle
+     * @return the formatted rectangle
+     */
+    private static String format(Rectangle rec) {
+        return rec.x + ", " + rec.y + ", " + rec.width + ", " + rec.height;
+    }
+
+
+    @Override
+    public void inserted(String name, Rectangle rec) {
+        out.println("Rectangle inserted: (" + format(name, rec) + ")");
+    }
+
+
+    @Override
+    public void rejected(String name, String x, String y, String w, String h) {
+        out.println("Rectangle rejected: (" + (name == null ? "" : name + ", ")
+            + x + ", " + y + ", " + w + ", " + h + ")");
+    }
+
+
+    @Override
+    public void removed(String name, Rectangle rec) {
+        out.println("Rectangle removed: (" + format(name, rec) + ")");
+    }
+
+
+    @Override
+    public void notFound(String name) {
+        out.println("Rectangle not found: (" + name + ")");
+    }
+
+
+    @Override
+    public void notFound(Rectangle rec) {
+        out.println("Rectangle not found: (" + format(rec) + ")");
+    }
+
+
+    @Override
+    public void noneInRange(String lo, String hi) {
+        out.println("Rectangles not found: (" + lo + ", " + hi + ")");
+    }
+
+
+    @Override
+    public void noneInRegion(Rectangle region) {
+        out.println("Rectangles not found: (" + format(region) + ")");
+    }
+
+
+    @Override
+    public void regionHeader(Rectangle region) {
+        out.println("Rectangles intersecting region (" + new Rectangle(region)
+            .toString() + "):");
+    }
+
+
+    @Override
+    public void rectangle(String name, Rectangle rec) {
+        out.println("(" + format(name, rec) + ")");
+    }
+
+
+    @Override
+    public void intersectionsHeader() {
+        out.println("Intersections pairs:");
+    }
+
+
+    @Override
+    public void intersection(String name1, Rectangle rec1, String name2,
+        Rectangle rec2) {
+        out.println("(" + format(name1, rec1) + " | " + format(name2, rec2)
+            + ")");
+    }
+
+
+    @Override
+    public void found() {
+        out.println("Rectangles found:");
+    }
+
+
+    @Override
+    public void searchNotFound(String name) {
+        out.println("Rectangles not found: " + name);
+    }
+
+
+    @Override
+    public void dumpHeader() {
+        out.println("SkipList dump:");
+    }
+
+
+    @Override
+    public void dumpNode(int depth, String name, Rectangle rec) {
+        out.println("Node has depth " + depth + ", Value " + (name == null
+            ? "(null)"
+            : "(" + format(name, rec) + ")"));
+    }
+
+
+    @Override
+    public void dumpSize(int size) {
+        out.println("SkipList size is: " + size);
+    }
+
+
+    @Override
+    public void unrecognized() {
+        out.println("Unrecognized Command");
+    }
+
+}